@@ -0,0 +1,102 @@
+package exchangetask;
+
+/**
+ * The AccountRisk class keeps exposure counters of a single account and checks orders against its limits.
+ * Counters are updated incrementally when orders rest, fill or get cancelled, so checking them is O(1).
+ * Counters are changed by {@link Exchange} only; other callers can read them.
+ * It's not thread safe.
+ */
+public class AccountRisk {
+    private RiskLimits limits;
+
+    private long openBuyQuantity;
+    private long openSellQuantity;
+    private long openNotional;
+
+    AccountRisk(RiskLimits limits) {
+        this.limits = limits;
+    }
+
+    void setLimits(RiskLimits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * @return true if prices of the account orders are limited by a band around a reference price
+     */
+    boolean hasPriceBand() {
+        return limits.priceBand != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Checks new or replacing order against account limits.
+     * running time - O(1)
+     *
+     * @param isBuy          side of the order
+     * @param price          order price
+     * @param size           order size
+     * @param replaced       order that is replaced by the checked one or null
+     * @param referencePrice price the band is measured from. Zero means there is no reference price
+     *                       or the account has no price band.
+     */
+    void check(boolean isBuy, int price, int size, Order replaced, int referencePrice) throws RequestRejectedException {
+        if (size > limits.maxOrderSize) {
+            throw new RequestRejectedException("Order size exceeds limit " + limits.maxOrderSize);
+        }
+        long openQuantity = isBuy ? openBuyQuantity : openSellQuantity;
+        long notional = openNotional;
+        if (replaced != null) {
+            openQuantity -= replaced.size;
+            notional -= (long) replaced.price * replaced.size;
+        }
+        if (openQuantity + size > limits.maxOpenQuantityPerSide) {
+            throw new RequestRejectedException("Open quantity exceeds limit " + limits.maxOpenQuantityPerSide);
+        }
+        if (notional + (long) price * size > limits.maxNotional) {
+            throw new RequestRejectedException("Open notional exceeds limit " + limits.maxNotional);
+        }
+        if (referencePrice > 0 && Math.abs((long) price - referencePrice) > limits.priceBand) {
+            throw new RequestRejectedException("Order price is outside of band " + limits.priceBand
+                    + " around " + referencePrice);
+        }
+    }
+
+    /**
+     * Accounts for quantity that became resting.
+     *
+     * @param isBuy side of the order
+     * @param price order price
+     * @param size  resting size
+     */
+    void onRest(boolean isBuy, int price, int size) {
+        if (isBuy) {
+            openBuyQuantity += size;
+        } else {
+            openSellQuantity += size;
+        }
+        openNotional += (long) price * size;
+    }
+
+    /**
+     * Accounts for resting quantity that was filled or cancelled.
+     *
+     * @param isBuy side of the order
+     * @param price order price
+     * @param size  removed size
+     */
+    void onRemove(boolean isBuy, int price, int size) {
+        onRest(isBuy, price, -size);
+    }
+
+    public long getOpenBuyQuantity() {
+        return openBuyQuantity;
+    }
+
+    public long getOpenSellQuantity() {
+        return openSellQuantity;
+    }
+
+    public long getOpenNotional() {
+        return openNotional;
+    }
+}
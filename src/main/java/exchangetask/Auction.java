@@ -0,0 +1,84 @@
+package exchangetask;
+
+/**
+ * The Auction class computes the equilibrium price of a call auction.
+ * The equilibrium price is the price with the maximum executable volume. Ties are resolved by the minimum
+ * surplus, then by the distance to the reference price, then by the lower price.
+ */
+public class Auction {
+
+    private Auction() {
+    }
+
+    /**
+     * Builds cumulative bid and ask depth over all price levels of both sides and scans it once.
+     * Running time - O(N)
+     *
+     * @param buyOrders      resting buy orders
+     * @param sellOrders     resting sell orders
+     * @param referencePrice price used to resolve ties. Zero means there is no reference price.
+     * @return equilibrium price or zero if the book is not crossed
+     */
+    public static int findEquilibriumPrice(OrderTable buyOrders, OrderTable sellOrders, int referencePrice) {
+        int buyLevels = buyOrders.getPriceLevelCount();
+        int[] buyPrices = new int[buyLevels];
+        long[] buySizes = new long[buyLevels];
+        buyOrders.copyPriceLevels(buyPrices, buySizes);
+
+        int sellLevels = sellOrders.getPriceLevelCount();
+        int[] sellPrices = new int[sellLevels];
+        long[] sellSizes = new long[sellLevels];
+        sellOrders.copyPriceLevels(sellPrices, sellSizes);
+
+        // merge both sides into ascending prices; ask depth accumulates from the bottom,
+        // bid depth holds the size of the level only and accumulates from the top below
+        int[] prices = new int[buyLevels + sellLevels];
+        long[] bidDepth = new long[prices.length];
+        long[] askDepth = new long[prices.length];
+        int levels = 0;
+        int buyLevel = 0;
+        int sellLevel = 0;
+        long askTotal = 0;
+        while (buyLevel < buyLevels || sellLevel < sellLevels) {
+            boolean takeBuy = sellLevel == sellLevels
+                    || (buyLevel < buyLevels && buyPrices[buyLevel] <= sellPrices[sellLevel]);
+            boolean takeSell = buyLevel == buyLevels
+                    || (sellLevel < sellLevels && sellPrices[sellLevel] <= buyPrices[buyLevel]);
+            prices[levels] = takeBuy ? buyPrices[buyLevel] : sellPrices[sellLevel];
+            if (takeBuy) {
+                bidDepth[levels] = buySizes[buyLevel++];
+            }
+            if (takeSell) {
+                askTotal += sellSizes[sellLevel++];
+            }
+            askDepth[levels] = askTotal;
+            levels++;
+        }
+
+        int bestPrice = 0;
+        long bestVolume = 0;
+        long bestSurplus = 0;
+        long bestDistance = 0;
+        long bidTotal = 0;
+        for (int level = levels - 1; level >= 0; level--) {
+            bidTotal += bidDepth[level];
+            bidDepth[level] = bidTotal;
+            long volume = Math.min(bidTotal, askDepth[level]);
+            if (volume == 0) {
+                continue;
+            }
+            long surplus = Math.abs(bidTotal - askDepth[level]);
+            long distance = referencePrice > 0 ? Math.abs((long) prices[level] - referencePrice) : 0;
+            // levels are visited from the highest price, so equal candidates are replaced by lower prices
+            if (volume > bestVolume
+                    || (volume == bestVolume && surplus < bestSurplus)
+                    || (volume == bestVolume && surplus == bestSurplus && distance <= bestDistance)) {
+                bestPrice = prices[level];
+                bestVolume = volume;
+                bestSurplus = surplus;
+                bestDistance = distance;
+            }
+        }
+        return bestPrice;
+    }
+}
@@ -0,0 +1,149 @@
+package exchangetask;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The Command class is an entry of the sequenced command log of a replicated exchange.
+ * Applying the same commands in the same order to empty exchanges produces the same state.
+ * Instances are immutable.
+ */
+public class Command {
+    private static final CommandType[] TYPES = CommandType.values();
+
+    final long sequence;
+    final long timestamp;
+    final CommandType type;
+    final long orderId;
+    final long accountId;
+    final boolean isBuy;
+    final int price;
+    final int size;
+    final RiskLimits limits;
+    final long checksum;
+
+    private Command(long sequence, long timestamp, CommandType type, long orderId, long accountId, boolean isBuy,
+                    int price, int size, RiskLimits limits, long checksum) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.orderId = orderId;
+        this.accountId = accountId;
+        this.isBuy = isBuy;
+        this.price = price;
+        this.size = size;
+        this.limits = limits;
+        this.checksum = checksum;
+    }
+
+    public static Command send(long sequence, long timestamp, long orderId, long accountId, boolean isBuy,
+                               int price, int size) {
+        return new Command(sequence, timestamp, CommandType.SEND, orderId, accountId, isBuy, price, size, null, 0);
+    }
+
+    public static Command modify(long sequence, long timestamp, long orderId, int price, int size) {
+        return new Command(sequence, timestamp, CommandType.MODIFY, orderId, 0, false, price, size, null, 0);
+    }
+
+    public static Command cancel(long sequence, long timestamp, long orderId) {
+        return new Command(sequence, timestamp, CommandType.CANCEL, orderId, 0, false, 0, 0, null, 0);
+    }
+
+    public static Command riskLimits(long sequence, long timestamp, long accountId, RiskLimits limits) {
+        return new Command(sequence, timestamp, CommandType.RISK_LIMITS, 0, accountId, false, 0, 0, limits, 0);
+    }
+
+    public static Command startAuction(long sequence, long timestamp) {
+        return new Command(sequence, timestamp, CommandType.START_AUCTION, 0, 0, false, 0, 0, null, 0);
+    }
+
+    public static Command uncross(long sequence, long timestamp) {
+        return new Command(sequence, timestamp, CommandType.UNCROSS, 0, 0, false, 0, 0, null, 0);
+    }
+
+    public static Command checksum(long sequence, long timestamp, long checksum) {
+        return new Command(sequence, timestamp, CommandType.CHECKSUM, 0, 0, false, 0, 0, null, checksum);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public CommandType getType() {
+        return type;
+    }
+
+    /**
+     * Applies command to the exchange. Checksum commands do not change the exchange.
+     *
+     * @param exchange exchange to apply command to
+     * @param clock    clock of the exchange. It's set to the command timestamp before applying.
+     * @return result of uncross command, zero for other commands
+     */
+    public int applyTo(Exchange exchange, CommandClock clock) throws RequestRejectedException {
+        clock.set(timestamp);
+        switch (type) {
+            case SEND:
+                exchange.send(orderId, accountId, isBuy, price, size);
+                return 0;
+            case MODIFY:
+                exchange.modify(orderId, price, size);
+                return 0;
+            case CANCEL:
+                exchange.cancel(orderId);
+                return 0;
+            case RISK_LIMITS:
+                exchange.setRiskLimits(accountId, limits);
+                return 0;
+            case START_AUCTION:
+                exchange.startAuction();
+                return 0;
+            case UNCROSS:
+                return exchange.uncross();
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Writes command in binary form
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(sequence);
+        out.writeLong(timestamp);
+        out.writeByte(type.ordinal());
+        out.writeLong(orderId);
+        out.writeLong(accountId);
+        out.writeBoolean(isBuy);
+        out.writeInt(price);
+        out.writeInt(size);
+        out.writeLong(checksum);
+        if (type == CommandType.RISK_LIMITS) {
+            out.writeInt(limits.maxOrderSize);
+            out.writeLong(limits.maxOpenQuantityPerSide);
+            out.writeLong(limits.maxNotional);
+            out.writeInt(limits.priceBand);
+        }
+    }
+
+    /**
+     * Reads command written by {@link #writeTo(DataOutput)}
+     */
+    public static Command readFrom(DataInput in) throws IOException {
+        long sequence = in.readLong();
+        long timestamp = in.readLong();
+        CommandType type = TYPES[in.readByte()];
+        long orderId = in.readLong();
+        long accountId = in.readLong();
+        boolean isBuy = in.readBoolean();
+        int price = in.readInt();
+        int size = in.readInt();
+        long checksum = in.readLong();
+        RiskLimits limits = null;
+        if (type == CommandType.RISK_LIMITS) {
+            limits = new RiskLimits(in.readInt(), in.readLong(), in.readLong(), in.readInt());
+        }
+        return new Command(sequence, timestamp, type, orderId, accountId, isBuy, price, size, limits, checksum);
+    }
+}
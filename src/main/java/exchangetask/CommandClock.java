@@ -0,0 +1,20 @@
+package exchangetask;
+
+import java.util.function.LongSupplier;
+
+/**
+ * The CommandClock class is the clock of a replicated exchange.
+ * It returns the timestamp of the command being applied, so primary and replicas record identical trades.
+ */
+public class CommandClock implements LongSupplier {
+    private long now;
+
+    public void set(long now) {
+        this.now = now;
+    }
+
+    @Override
+    public long getAsLong() {
+        return now;
+    }
+}
@@ -0,0 +1,6 @@
+package exchangetask;
+
+public interface CommandListener {
+    // Called for every command of the log in sequence order
+    void onCommand(Command command);
+}
@@ -0,0 +1,12 @@
+package exchangetask;
+
+public enum CommandType {
+    SEND,
+    MODIFY,
+    CANCEL,
+    RISK_LIMITS,
+    START_AUCTION,
+    UNCROSS,
+    // carries state checksum of the primary after all preceding commands
+    CHECKSUM
+}
@@ -1,23 +1,74 @@
 package exchangetask;
 
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
 
 /**
  * The Exchange class implements ExchangeInterface and QueryInterface.
  * It processes incoming orders and keeps cache of resting orders.
+ * Orders of accounts with configured risk limits are checked before they are matched.
+ * During a call auction orders are collected without matching and executed in one batch by {@link #uncross()}.
+ * Executions are recorded in the trade tape with timestamps taken from the clock.
  * The class is not thread safe.
  */
 
 public class Exchange implements ExchangeInterface, QueryInterface {
 
+    /**
+     * Account of orders sent without explicit account id.
+     */
+    public static final long DEFAULT_ACCOUNT_ID = 0;
+
+    /**
+     * Number of trades retained by the trade tape of exchange created without explicit tape capacity.
+     */
+    public static final int DEFAULT_TAPE_CAPACITY = 1 << 16;
+
     private final OrderTable buyOrders = new OrderTable();
 
     private final OrderTable sellOrders = new OrderTable();
 
+    private final Map<Long, AccountRisk> accountRisks = new HashMap<>();
+
+    private final LongSupplier clock;
+
+    private final TradeTape tradeTape;
+
+    private boolean auction;
+
+    public Exchange() {
+        this(System::currentTimeMillis);
+    }
+
+    public Exchange(LongSupplier clock) {
+        this(clock, DEFAULT_TAPE_CAPACITY);
+    }
+
+    /**
+     * @param clock        source of trade timestamps
+     * @param tapeCapacity number of trades retained by the trade tape. Must be a power of two.
+     */
+    public Exchange(LongSupplier clock, int tapeCapacity) {
+        this.clock = clock;
+        this.tradeTape = new TradeTape(tapeCapacity);
+    }
 
     /**
-     * Sends order to execution
+     * @return tape with executions of this exchange. Aggregators are attached to it as listeners.
+     */
+    public TradeTape getTradeTape() {
+        return tradeTape;
+    }
+
+
+    /**
+     * Sends order of the default account to execution
      * average running time - O(logN)
      *
      * @param orderId id of new order
@@ -26,63 +77,338 @@ public class Exchange implements ExchangeInterface, QueryInterface {
      * @param size    order size. Must be greater than zero.
      */
     public void send(long orderId, boolean isBuy, int price, int size) throws RequestRejectedException {
+        send(orderId, DEFAULT_ACCOUNT_ID, isBuy, price, size);
+    }
+
+    /**
+     * Sends order to execution. During a call auction the order is stored in resting orders without matching.
+     * average running time - O(logN)
+     *
+     * @param orderId   id of new order
+     * @param accountId account the order belongs to
+     * @param isBuy     side of the order
+     * @param price     order price. Must be greater than zero.
+     * @param size      order size. Must be greater than zero.
+     */
+    public void send(long orderId, long accountId, boolean isBuy, int price, int size) throws RequestRejectedException {
         validateGreaterThanZero(price, "Order price should be higher than 0 ");
         validateGreaterThanZero(size, "Order size should be higher than 0 ");
         if (sellOrders.exists(orderId) || buyOrders.exists(orderId)) {
             throw new RequestRejectedException("Order already exists");
         } else {
-            if (isBuy) {
+            AccountRisk risk = accountRisks.get(accountId);
+            if (risk != null) {
+                checkRisk(risk, isBuy, price, size, null);
+            }
+            Order order = new Order(orderId, price, size, accountId);
+            if (auction) {
+                rest(order, isBuy, isBuy ? buyOrders : sellOrders);
+            } else if (isBuy) {
                 Collection<Order> matchingOrders = sellOrders.getSamePriceOrCheaperOrders(price);
-                fulfillOrder(orderId, price, size, matchingOrders, sellOrders, buyOrders);
+                fulfillOrder(order, true, matchingOrders, sellOrders, buyOrders);
             } else {
                 Collection<Order> matchingOrders = buyOrders.getSamePriceOrMoreExpensiveOrders(price);
-                fulfillOrder(orderId, price, size, matchingOrders, buyOrders, sellOrders);
+                fulfillOrder(order, false, matchingOrders, buyOrders, sellOrders);
             }
         }
     }
 
+    /**
+     * Returns checksum of the exchange state: resting orders, recorded trades and auction mode.
+     * Exchanges that processed the same commands have equal checksums.
+     * running time - O(1)
+     */
+    public long getStateChecksum() {
+        long checksum = buyOrders.getChecksum();
+        checksum = checksum * 31 + sellOrders.getChecksum();
+        checksum = checksum * 31 + tradeTape.getTradeCount();
+        checksum = checksum * 31 + tradeTape.getLastPrice();
+        return checksum * 31 + (auction ? 1 : 0);
+    }
+
+    /**
+     * Starts call auction. Orders sent until {@link #uncross()} are not matched.
+     */
+    public void startAuction() throws RequestRejectedException {
+        if (auction) {
+            throw new RequestRejectedException("Auction is already running");
+        }
+        auction = true;
+    }
+
+    /**
+     * @return true if call auction is running
+     */
+    public boolean isAuction() {
+        return auction;
+    }
+
+    /**
+     * Finishes call auction. Finds the equilibrium price and executes all crossing orders at it in one batch,
+     * best priced orders first. Continuous matching resumes afterwards.
+     * running time - O(NlogN)
+     *
+     * @return equilibrium price or zero if nothing was executed
+     */
+    public int uncross() throws RequestRejectedException {
+        if (!auction) {
+            throw new RequestRejectedException("Auction is not running");
+        }
+        auction = false;
+        int price = Auction.findEquilibriumPrice(buyOrders, sellOrders, tradeTape.getLastPrice());
+        if (price > 0) {
+            UncrossSide buys = new UncrossSide(true, buyOrders, buyOrders.getSamePriceOrMoreExpensiveOrders(price));
+            UncrossSide sells = new UncrossSide(false, sellOrders, sellOrders.getSamePriceOrCheaperOrders(price));
+            // all executions of the batch happen at the same moment
+            long timestamp = clock.getAsLong();
+            while (buys.hasSizeLeft() && sells.hasSizeLeft()) {
+                int fillSize = Math.min(buys.sizeLeft, sells.sizeLeft);
+                tradeTape.record(timestamp, price, fillSize, buys.order.orderId, sells.order.orderId);
+                buys.execute(fillSize);
+                sells.execute(fillSize);
+            }
+            buys.removeExecutedOrders();
+            sells.removeExecutedOrders();
+        }
+        return price;
+    }
+
+    /**
+     * Sets risk limits of the account. Exposure of already resting orders of the account is taken into account.
+     * running time - O(N) for account without limits, O(1) otherwise
+     *
+     * @param accountId account to set limits for
+     * @param limits    new limits of the account. Use {@link RiskLimits#NONE} to lift limits.
+     */
+    public void setRiskLimits(long accountId, RiskLimits limits) throws RequestRejectedException {
+        if (limits == null) {
+            throw new RequestRejectedException("Risk limits should be specified for account id = " + accountId);
+        }
+        AccountRisk risk = accountRisks.get(accountId);
+        if (risk != null) {
+            risk.setLimits(limits);
+        } else {
+            risk = new AccountRisk(limits);
+            addRestingExposure(risk, accountId, buyOrders, true);
+            addRestingExposure(risk, accountId, sellOrders, false);
+            accountRisks.put(accountId, risk);
+        }
+    }
+
+    /**
+     * @param accountId account to get exposure of
+     * @return exposure counters of the account or null if the account has no risk limits.
+     * Counters can be read only, they are changed by the exchange itself.
+     */
+    public AccountRisk getAccountRisk(long accountId) {
+        return accountRisks.get(accountId);
+    }
+
+    private void addRestingExposure(AccountRisk risk, long accountId, OrderTable orders, boolean isBuy) {
+        for (Order order : orders.getAllOrders()) {
+            if (order.accountId == accountId) {
+                risk.onRest(isBuy, order.price, order.size);
+            }
+        }
+    }
+
+    /**
+     * Checks order against limits of its account. Besides the account lookup the check is O(1),
+     * except for accounts with a price band before the first trade: their reference price is the best price
+     * of the book, which costs O(logN).
+     *
+     * @param risk     exposure and limits of the order account
+     * @param isBuy    side of the order
+     * @param price    order price
+     * @param size     order size
+     * @param replaced order that is replaced by the checked one or null
+     */
+    private void checkRisk(AccountRisk risk, boolean isBuy, int price, int size, Order replaced)
+            throws RequestRejectedException {
+        int referencePrice = risk.hasPriceBand() ? getReferencePrice(isBuy) : 0;
+        risk.check(isBuy, price, size, replaced, referencePrice);
+    }
+
+    /**
+     * Returns price the risk price band is measured from: the last trade price, otherwise the best opposite price,
+     * otherwise the best price of the same side. Zero if the book is empty and nothing traded yet.
+     * running time - O(1) after the first trade, O(logN) before it
+     */
+    private int getReferencePrice(boolean isBuy) throws RequestRejectedException {
+        int lastTradePrice = tradeTape.getLastPrice();
+        if (lastTradePrice > 0) {
+            return lastTradePrice;
+        }
+        int opposite = isBuy ? getLowestSellPrice() : getHighestBuyPrice();
+        if (opposite > 0) {
+            return opposite;
+        }
+        return isBuy ? getHighestBuyPrice() : getLowestSellPrice();
+    }
+
     /**
      * Selects matching orders and sends them to execution. Stores unmatched amount in resting orders.
      *
-     * @param orderId                  id of new order
-     * @param price                    order price. Must be greater than zero.
-     * @param size                     order size. Must be greater than zero.
+     * @param order                    new order
+     * @param isBuy                    side of the new order
      * @param matchingOrders           list of opposite side orders that can be matched with current order
      * @param tableForMatchingOrders   table where opposite side orders are stored
      * @param tableForNonMatchedAmount table where to store non-matched amount
      */
-    private void fulfillOrder(long orderId, int price, int size, Collection<Order> matchingOrders,
+    private void fulfillOrder(Order order, boolean isBuy, Collection<Order> matchingOrders,
                               OrderTable tableForMatchingOrders, OrderTable tableForNonMatchedAmount) {
-        int notFulfilledAmount = matchOrders(size, matchingOrders, tableForMatchingOrders);
+        int notFulfilledAmount = matchOrders(order, isBuy, matchingOrders, tableForMatchingOrders);
         if (notFulfilledAmount > 0) {
-            tableForNonMatchedAmount.add(new Order(orderId, price, notFulfilledAmount));
+            rest(new Order(order.orderId, order.price, notFulfilledAmount, order.accountId), isBuy,
+                    tableForNonMatchedAmount);
         }
     }
 
     /**
-     * Selects matching orders and sends them to execution. Stores unmatched amount in resting orders.
+     * Selects matching orders and sends them to execution.
      *
-     * @param size                   order size. Must be greater than zero.
+     * @param order                  new order
+     * @param isBuy                  side of the new order
      * @param matchingOrders         list of opposite side orders that can be matched with current order
      * @param tableForMatchingOrders table where opposite side orders are stored
      * @return nonmatched amount of the current order
      */
-    private int matchOrders(int size, Collection<Order> matchingOrders, OrderTable tableForMatchingOrders) {
-        int sizeLeft = size;
+    private int matchOrders(Order order, boolean isBuy, Collection<Order> matchingOrders,
+                            OrderTable tableForMatchingOrders) {
+        int sizeLeft = order.size;
         for (Order nextOrder : matchingOrders) {
-            if (nextOrder.size > sizeLeft) {
-                tableForMatchingOrders.modify(nextOrder.orderId, nextOrder.price, nextOrder.size - sizeLeft);
+            int fillSize = Math.min(nextOrder.size, sizeLeft);
+            tradeTape.record(clock.getAsLong(), nextOrder.price, fillSize,
+                    isBuy ? order.orderId : nextOrder.orderId, isBuy ? nextOrder.orderId : order.orderId);
+            fillRestingOrder(nextOrder, !isBuy, fillSize, tableForMatchingOrders);
+            sizeLeft = sizeLeft - fillSize;
+            if (sizeLeft == 0) {
                 return 0;
-            } else {
-                tableForMatchingOrders.remove(nextOrder.orderId);
-                sizeLeft = sizeLeft - nextOrder.size;
             }
         }
         return sizeLeft;
     }
 
     /**
-     * Selects matching orders and sends them to execution. Stores unmatched amount in resting orders.
+     * Executes specified amount of the resting order and updates exposure of its account.
+     *
+     * @param order      resting order
+     * @param isBuy      side of the resting order
+     * @param fillSize   executed amount. Must not be greater than order size.
+     * @param table      table where the resting order is stored
+     */
+    private void fillRestingOrder(Order order, boolean isBuy, int fillSize, OrderTable table) {
+        if (order.size > fillSize) {
+            table.modify(order.orderId, order.price, order.size - fillSize);
+        } else {
+            table.remove(order.orderId);
+        }
+        releaseExposure(order, isBuy, fillSize);
+    }
+
+    /**
+     * Executes crossing orders of one side during uncross. Sizes are tracked locally and tables are updated
+     * once at the end: fully executed price levels are dropped in bulk, so only the orders of the last touched
+     * level are removed one by one and at most one order is left partially executed.
+     */
+    private class UncrossSide {
+        private final boolean isBuy;
+        private final OrderTable table;
+        private final Iterator<Order> orders;
+        private final List<Order> executedAtLastPrice = new ArrayList<>();
+        private Order order;
+        private int sizeLeft;
+
+        UncrossSide(boolean isBuy, OrderTable table, Collection<Order> crossingOrders) {
+            this.isBuy = isBuy;
+            this.table = table;
+            this.orders = crossingOrders.iterator();
+        }
+
+        /**
+         * Moves to the next crossing order if the current one is executed
+         *
+         * @return false if all crossing orders are executed
+         */
+        boolean hasSizeLeft() {
+            if (sizeLeft > 0) {
+                return true;
+            }
+            if (!orders.hasNext()) {
+                return false;
+            }
+            Order next = orders.next();
+            if (order != null && order.price != next.price) {
+                executedAtLastPrice.clear();
+            }
+            order = next;
+            sizeLeft = next.size;
+            return true;
+        }
+
+        void execute(int fillSize) {
+            sizeLeft -= fillSize;
+            if (sizeLeft == 0) {
+                executedAtLastPrice.add(order);
+                releaseExposure(order, isBuy, order.size);
+            }
+        }
+
+        void removeExecutedOrders() {
+            if (order == null) {
+                return;
+            }
+            if (isBuy) {
+                table.removeOrdersAbove(order.price);
+            } else {
+                table.removeOrdersBelow(order.price);
+            }
+            for (Order executed : executedAtLastPrice) {
+                table.remove(executed.orderId);
+            }
+            if (sizeLeft > 0 && sizeLeft < order.size) {
+                table.modify(order.orderId, order.price, sizeLeft);
+                releaseExposure(order, isBuy, order.size - sizeLeft);
+            }
+        }
+    }
+
+    /**
+     * Updates exposure of the account of resting order that was executed or cancelled.
+     */
+    private void releaseExposure(Order order, boolean isBuy, int size) {
+        if (!accountRisks.isEmpty()) {
+            AccountRisk risk = accountRisks.get(order.accountId);
+            if (risk != null) {
+                risk.onRemove(isBuy, order.price, size);
+            }
+        }
+    }
+
+    /**
+     * Stores order in resting orders and updates exposure of its account.
+     */
+    private void rest(Order order, boolean isBuy, OrderTable table) {
+        table.add(order);
+        AccountRisk risk = accountRisks.get(order.accountId);
+        if (risk != null) {
+            risk.onRest(isBuy, order.price, order.size);
+        }
+    }
+
+    /**
+     * Removes order from resting orders and updates exposure of its account.
+     */
+    private void removeResting(Order order, boolean isBuy, OrderTable table) {
+        table.remove(order.orderId);
+        AccountRisk risk = accountRisks.get(order.accountId);
+        if (risk != null) {
+            risk.onRemove(isBuy, order.price, order.size);
+        }
+    }
+
+    /**
+     * Modifies resting order. Orders of accounts with risk limits are checked against them first.
      *
      * @param orderId id of the order to modify. Must be existing order id.
      * @param price   order price. Must be greater than zero.
@@ -92,14 +418,24 @@ public class Exchange implements ExchangeInterface, QueryInterface {
         validateGreaterThanZero(price, "Order price should be higher than 0 ");
         validateGreaterThanZero(size, "Order size should be higher than 0 ");
         if (buyOrders.exists(orderId)) {
-            buyOrders.modify(orderId, price, size);
+            modifyResting(buyOrders.get(orderId), true, price, size, buyOrders);
         } else if (sellOrders.exists(orderId)) {
-            sellOrders.modify(orderId, price, size);
+            modifyResting(sellOrders.get(orderId), false, price, size, sellOrders);
         } else {
             throw new RequestRejectedException("Order does not exist id = " + orderId);
         }
     }
 
+    private void modifyResting(Order order, boolean isBuy, int price, int size, OrderTable table)
+            throws RequestRejectedException {
+        AccountRisk risk = accountRisks.get(order.accountId);
+        if (risk != null) {
+            checkRisk(risk, isBuy, price, size, order);
+        }
+        removeResting(order, isBuy, table);
+        rest(new Order(order.orderId, price, size, order.accountId), isBuy, table);
+    }
+
     private void validateGreaterThanZero(int val, String msg) throws RequestRejectedException {
         if (val <= 0) {
             throw new RequestRejectedException(msg);
@@ -113,9 +449,9 @@ public class Exchange implements ExchangeInterface, QueryInterface {
      */
     public void cancel(long orderId) throws RequestRejectedException {
         if (buyOrders.exists(orderId)) {
-            buyOrders.remove(orderId);
+            removeResting(buyOrders.get(orderId), true, buyOrders);
         } else if (sellOrders.exists(orderId)) {
-            sellOrders.remove(orderId);
+            removeResting(sellOrders.get(orderId), false, sellOrders);
         } else {
             throw new RequestRejectedException("Order not found id = " + orderId);
         }
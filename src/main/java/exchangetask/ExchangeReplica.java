@@ -0,0 +1,107 @@
+package exchangetask;
+
+import java.util.function.LongSupplier;
+
+/**
+ * The ExchangeReplica class is a hot standby of a replicated exchange.
+ * It applies the command log of the primary to its own exchange and compares state checksums
+ * whenever the log contains one. A replica that has not diverged can be promoted to primary without rebuilding the book.
+ * Commands must be applied by one thread at a time; progress can be observed from any thread.
+ */
+public class ExchangeReplica implements CommandListener {
+    private final CommandClock clock = new CommandClock();
+    private final Exchange exchange = new Exchange(clock);
+
+    private volatile long appliedSequence;
+    private volatile long divergedSequence;
+    private boolean promoted;
+
+    /**
+     * Applies command of the primary log
+     *
+     * @param command next command of the log
+     */
+    @Override
+    public void onCommand(Command command) {
+        if (promoted) {
+            throw new IllegalStateException("Replica is promoted to primary");
+        }
+        if (divergedSequence != 0) {
+            return;
+        }
+        if (command.sequence != appliedSequence + 1) {
+            divergedSequence = command.sequence;
+            return;
+        }
+        if (command.type == CommandType.CHECKSUM) {
+            if (command.checksum != exchange.getStateChecksum()) {
+                divergedSequence = command.sequence;
+                return;
+            }
+        } else {
+            try {
+                command.applyTo(exchange, clock);
+            } catch (RequestRejectedException e) {
+                // primary publishes accepted commands only
+                divergedSequence = command.sequence;
+                return;
+            }
+        }
+        appliedSequence = command.sequence;
+    }
+
+    /**
+     * @return sequence number of the latest applied command
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * @return true if state of the replica matched every checksum of the primary so far
+     */
+    public boolean isConsistent() {
+        return divergedSequence == 0;
+    }
+
+    /**
+     * @return sequence number of the first command the replica could not reproduce or zero
+     */
+    public long getDivergedSequence() {
+        return divergedSequence;
+    }
+
+    /**
+     * @return exchange the replica applies commands to. It must not be changed directly.
+     */
+    public Exchange getExchange() {
+        return exchange;
+    }
+
+    /**
+     * Turns replica into primary that continues the command log with timestamps of the system clock.
+     *
+     * @param checksumInterval number of commands between checksum commands of the new primary
+     */
+    public ReplicatedExchange promote(int checksumInterval) {
+        return promote(System::currentTimeMillis, checksumInterval);
+    }
+
+    /**
+     * Turns replica into primary that continues the command log. The book is taken over as is.
+     * Commands in flight to this replica must be applied or discarded before promotion.
+     *
+     * @param wallClock        source of command timestamps of the new primary
+     * @param checksumInterval number of commands between checksum commands of the new primary
+     */
+    public ReplicatedExchange promote(LongSupplier wallClock, int checksumInterval) {
+        if (divergedSequence != 0) {
+            throw new IllegalStateException("Replica diverged at sequence " + divergedSequence);
+        }
+        if (promoted) {
+            throw new IllegalStateException("Replica is already promoted");
+        }
+        promoted = true;
+        return new ReplicatedExchange(exchange, clock, wallClock, appliedSequence + 1, checksumInterval);
+    }
+}
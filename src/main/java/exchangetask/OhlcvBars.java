@@ -0,0 +1,99 @@
+package exchangetask;
+
+/**
+ * The OhlcvBars class aggregates trades into open/high/low/close/volume bars of fixed interval.
+ * Bars are aligned to multiples of the interval; intervals without trades produce no bar.
+ * Bars are addressed by age: zero is the current bar, one is the bar before it and so on.
+ * Only the latest {@code capacity} bars are retained.
+ * It's not thread safe.
+ */
+public class OhlcvBars implements TradeListener {
+    private final long interval;
+    private final long[] startTimes;
+    private final int[] opens;
+    private final int[] highs;
+    private final int[] lows;
+    private final int[] closes;
+    private final long[] volumes;
+
+    private long barCount;
+
+    /**
+     * @param interval bar length in clock units. Must be greater than zero.
+     * @param capacity number of retained bars. Must be greater than zero.
+     */
+    public OhlcvBars(long interval, int capacity) {
+        if (interval <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Interval and capacity should be higher than 0");
+        }
+        this.interval = interval;
+        startTimes = new long[capacity];
+        opens = new int[capacity];
+        highs = new int[capacity];
+        lows = new int[capacity];
+        closes = new int[capacity];
+        volumes = new long[capacity];
+    }
+
+    /**
+     * Updates current bar or opens a new one
+     * running time - O(1)
+     */
+    @Override
+    public void onTrade(long timestamp, int price, int size) {
+        long startTime = timestamp - Math.floorMod(timestamp, interval);
+        int index = (int) ((barCount - 1) % startTimes.length);
+        // trades with a clock going backwards stay in the current bar
+        if (barCount == 0 || startTime > startTimes[index]) {
+            index = (int) (barCount % startTimes.length);
+            barCount++;
+            startTimes[index] = startTime;
+            opens[index] = price;
+            highs[index] = price;
+            lows[index] = price;
+            volumes[index] = 0;
+        }
+        highs[index] = Math.max(highs[index], price);
+        lows[index] = Math.min(lows[index], price);
+        closes[index] = price;
+        volumes[index] += size;
+    }
+
+    /**
+     * @return number of retained bars
+     */
+    public int getBarCount() {
+        return (int) Math.min(barCount, startTimes.length);
+    }
+
+    public long getStartTime(int barsAgo) {
+        return startTimes[indexOf(barsAgo)];
+    }
+
+    public int getOpen(int barsAgo) {
+        return opens[indexOf(barsAgo)];
+    }
+
+    public int getHigh(int barsAgo) {
+        return highs[indexOf(barsAgo)];
+    }
+
+    public int getLow(int barsAgo) {
+        return lows[indexOf(barsAgo)];
+    }
+
+    public int getClose(int barsAgo) {
+        return closes[indexOf(barsAgo)];
+    }
+
+    public long getVolume(int barsAgo) {
+        return volumes[indexOf(barsAgo)];
+    }
+
+    private int indexOf(int barsAgo) {
+        if (barsAgo < 0 || barsAgo >= getBarCount()) {
+            throw new IndexOutOfBoundsException("Bar is not retained barsAgo = " + barsAgo);
+        }
+        return (int) ((barCount - 1 - barsAgo) % startTimes.length);
+    }
+}
@@ -1,16 +1,20 @@
 package exchangetask;
 
-import java.util.Objects;
-
 public class Order {
     final long orderId;
     final int price;
     final int size;
+    final long accountId;
 
     public Order(long orderId, int price, int size) {
+        this(orderId, price, size, Exchange.DEFAULT_ACCOUNT_ID);
+    }
+
+    public Order(long orderId, int price, int size, long accountId) {
         this.orderId = orderId;
         this.price = price;
         this.size = size;
+        this.accountId = accountId;
     }
 
     @Override
@@ -20,11 +24,13 @@ public class Order {
         Order order = (Order) o;
         return orderId == order.orderId &&
                 price == order.price &&
-                size == order.size;
+                size == order.size &&
+                accountId == order.accountId;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(orderId, price, size);
+        // ids are unique within a table, so hashing the id alone keeps index updates cheap
+        return Long.hashCode(orderId);
     }
 }
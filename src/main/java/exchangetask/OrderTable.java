@@ -11,6 +11,7 @@ import java.util.stream.Collectors;
 public class OrderTable {
     private final Map<Long, Order> orderCache = new HashMap<>();
     private final TreeMap<Integer, Set<Order>> orderIndexByPrice = new TreeMap<>();
+    private long checksum;
 
 
     /**
@@ -23,6 +24,7 @@ public class OrderTable {
         Set<Order> ordersAtSamePrice = orderIndexByPrice.getOrDefault(order.price, new HashSet<>());
         ordersAtSamePrice.add(order);
         orderIndexByPrice.put(order.price, ordersAtSamePrice);
+        checksum += hash(order);
     }
 
     /**
@@ -43,10 +45,64 @@ public class OrderTable {
      * @param order order to remove
      */
     private void removeOrderFromIndex(Order order) {
-        orderIndexByPrice.get(order.price).remove(order);
-        if (orderIndexByPrice.get(order.price).isEmpty()) {
+        Set<Order> ordersAtSamePrice = orderIndexByPrice.get(order.price);
+        ordersAtSamePrice.remove(order);
+        if (ordersAtSamePrice.isEmpty()) {
             orderIndexByPrice.remove(order.price);
         }
+        checksum -= hash(order);
+    }
+
+    /**
+     * Removes all orders with price higher than specified
+     * running time - O(K) where K is number of removed orders
+     *
+     * @param price price to check
+     */
+    public void removeOrdersAbove(int price) {
+        removeLevels(orderIndexByPrice.tailMap(price, false));
+    }
+
+    /**
+     * Removes all orders with price lower than specified
+     * running time - O(K) where K is number of removed orders
+     *
+     * @param price price to check
+     */
+    public void removeOrdersBelow(int price) {
+        removeLevels(orderIndexByPrice.headMap(price, false));
+    }
+
+    private void removeLevels(Map<Integer, Set<Order>> levels) {
+        for (Set<Order> ordersAtSamePrice : levels.values()) {
+            for (Order order : ordersAtSamePrice) {
+                orderCache.remove(order.orderId);
+                checksum -= hash(order);
+            }
+        }
+        levels.clear();
+    }
+
+    /**
+     * Returns checksum of resting orders. It does not depend on the order in which orders were added
+     * and is updated incrementally, so running time - O(1)
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+    private static long hash(Order order) {
+        long hash = order.orderId;
+        hash = hash * 31 + order.price;
+        hash = hash * 31 + order.size;
+        hash = hash * 31 + order.accountId;
+        // 64-bit finalizer of MurmurHash3, spreads close values over all bits
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
     }
 
     /**
@@ -95,13 +151,31 @@ public class OrderTable {
      */
     public void modify(long orderId, int price, int size) {
         if (orderCache.containsKey(orderId)) {
-            Order newOrder = new Order(orderId, price, size);
             Order oldOrder = orderCache.get(orderId);
+            Order newOrder = new Order(orderId, price, size, oldOrder.accountId);
             removeOrderFromIndex(oldOrder);
             add(newOrder);
         }
     }
 
+    /**
+     * Returns order with specified id or null if it does not exist
+     * average running time - O(1)
+     *
+     * @param orderId id of order to get
+     */
+    public Order get(long orderId) {
+        return orderCache.get(orderId);
+    }
+
+    /**
+     * Returns all resting orders of this side in no particular order
+     * running time - O(1), iteration - O(N)
+     */
+    public Collection<Order> getAllOrders() {
+        return orderCache.values();
+    }
+
     /**
      * Returns collection of order which price is equal to specified price
      * average running time - O(logN)
@@ -123,7 +197,6 @@ public class OrderTable {
         Map<Integer, Set<Order>> sameOrCheaperOrders = orderIndexByPrice.headMap(price, true);
         return sameOrCheaperOrders.values().stream()
                 .flatMap(Collection::stream)
-                .sorted(Comparator.comparingInt(order -> order.price))
                 .collect(Collectors.toList());
     }
 
@@ -134,10 +207,38 @@ public class OrderTable {
      * @return collection of orders whose price is equal or higher than specified price. Sorted in descending order.
      */
     public Collection<Order> getSamePriceOrMoreExpensiveOrders(int price) {
-        Map<Integer, Set<Order>> sameOrPricierOrders = orderIndexByPrice.tailMap(price, true);
+        Map<Integer, Set<Order>> sameOrPricierOrders = orderIndexByPrice.tailMap(price, true).descendingMap();
         return sameOrPricierOrders.values().stream()
                 .flatMap(Collection::stream)
-                .sorted((o1, o2) -> -Integer.compare(o1.price, o2.price))
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Running time - O(1)
+     *
+     * @return number of distinct prices among resting orders
+     */
+    public int getPriceLevelCount() {
+        return orderIndexByPrice.size();
+    }
+
+    /**
+     * Copies distinct prices in ascending order together with total size of orders at each of them.
+     * Running time - O(N)
+     *
+     * @param prices array to store prices in. Must fit {@link #getPriceLevelCount()} elements.
+     * @param sizes  array to store total sizes in. Must fit {@link #getPriceLevelCount()} elements.
+     */
+    public void copyPriceLevels(int[] prices, long[] sizes) {
+        int level = 0;
+        for (Map.Entry<Integer, Set<Order>> entry : orderIndexByPrice.entrySet()) {
+            long size = 0;
+            for (Order order : entry.getValue()) {
+                size += order.size;
+            }
+            prices[level] = entry.getKey();
+            sizes[level] = size;
+            level++;
+        }
+    }
 }
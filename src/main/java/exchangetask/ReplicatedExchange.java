@@ -0,0 +1,165 @@
+package exchangetask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * The ReplicatedExchange class is the primary of a replicated exchange.
+ * Every accepted request becomes a sequenced command that is applied to the local exchange
+ * and then published to replicas. Rejected requests do not change state and are not published.
+ * Every {@code checksumInterval} commands a checksum command lets replicas verify their state.
+ * Replicas are attached before the first command, so each of them sees the whole log of this primary.
+ * A replica that fails to take a command is detached, so it can not fail requests or starve other replicas.
+ * The class is not thread safe.
+ */
+public class ReplicatedExchange implements ExchangeInterface, QueryInterface {
+    private final Exchange exchange;
+    private final CommandClock clock;
+    private final LongSupplier wallClock;
+    private final int checksumInterval;
+    private final long firstSequence;
+    private final List<CommandListener> replicas = new ArrayList<>();
+    private final Map<CommandListener, RuntimeException> failedReplicas = new LinkedHashMap<>();
+
+    private long nextSequence;
+
+    /**
+     * @param checksumInterval number of commands between checksum commands. Must be greater than zero.
+     */
+    public ReplicatedExchange(int checksumInterval) {
+        this(System::currentTimeMillis, checksumInterval);
+    }
+
+    /**
+     * @param wallClock        source of command timestamps
+     * @param checksumInterval number of commands between checksum commands. Must be greater than zero.
+     */
+    public ReplicatedExchange(LongSupplier wallClock, int checksumInterval) {
+        this(wallClock, new CommandClock(), checksumInterval);
+    }
+
+    private ReplicatedExchange(LongSupplier wallClock, CommandClock clock, int checksumInterval) {
+        this(new Exchange(clock), clock, wallClock, 1, checksumInterval);
+    }
+
+    /**
+     * Creates primary on top of exchange that was built by applying commands up to {@code nextSequence - 1}.
+     */
+    ReplicatedExchange(Exchange exchange, CommandClock clock, LongSupplier wallClock, long nextSequence,
+                       int checksumInterval) {
+        if (checksumInterval <= 0) {
+            throw new IllegalArgumentException("Checksum interval should be higher than 0");
+        }
+        this.exchange = exchange;
+        this.clock = clock;
+        this.wallClock = wallClock;
+        this.firstSequence = nextSequence;
+        this.nextSequence = nextSequence;
+        this.checksumInterval = checksumInterval;
+    }
+
+    /**
+     * Attaches replica. It must be attached before the first command of this primary, replicas that join later
+     * would miss commands.
+     *
+     * @throws IllegalStateException if the primary already published commands
+     */
+    public void addReplica(CommandListener replica) {
+        if (nextSequence != firstSequence) {
+            throw new IllegalStateException("Replica can not join after sequence " + getLastSequence());
+        }
+        replicas.add(replica);
+    }
+
+    /**
+     * @return replicas that were detached because they failed to take a command, with the failure
+     */
+    public Map<CommandListener, RuntimeException> getFailedReplicas() {
+        return Collections.unmodifiableMap(failedReplicas);
+    }
+
+    /**
+     * @return sequence number of the latest published command or zero if nothing was published
+     */
+    public long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    /**
+     * @return local exchange. It must not be changed directly, otherwise replicas diverge.
+     */
+    public Exchange getExchange() {
+        return exchange;
+    }
+
+    public void send(long orderId, boolean isBuy, int price, int size) throws RequestRejectedException {
+        send(orderId, Exchange.DEFAULT_ACCOUNT_ID, isBuy, price, size);
+    }
+
+    public void send(long orderId, long accountId, boolean isBuy, int price, int size) throws RequestRejectedException {
+        execute(Command.send(nextSequence, wallClock.getAsLong(), orderId, accountId, isBuy, price, size));
+    }
+
+    public void modify(long orderId, int price, int size) throws RequestRejectedException {
+        execute(Command.modify(nextSequence, wallClock.getAsLong(), orderId, price, size));
+    }
+
+    public void cancel(long orderId) throws RequestRejectedException {
+        execute(Command.cancel(nextSequence, wallClock.getAsLong(), orderId));
+    }
+
+    public void setRiskLimits(long accountId, RiskLimits limits) throws RequestRejectedException {
+        execute(Command.riskLimits(nextSequence, wallClock.getAsLong(), accountId, limits));
+    }
+
+    public void startAuction() throws RequestRejectedException {
+        execute(Command.startAuction(nextSequence, wallClock.getAsLong()));
+    }
+
+    public int uncross() throws RequestRejectedException {
+        return execute(Command.uncross(nextSequence, wallClock.getAsLong()));
+    }
+
+    private int execute(Command command) throws RequestRejectedException {
+        int result = command.applyTo(exchange, clock);
+        publish(command);
+        if (nextSequence % checksumInterval == 0) {
+            publish(Command.checksum(nextSequence, command.timestamp, exchange.getStateChecksum()));
+        }
+        return result;
+    }
+
+    /**
+     * Passes command to replicas. The command is already applied, so a failing replica is detached
+     * instead of failing the request.
+     */
+    private void publish(Command command) {
+        nextSequence++;
+        for (Iterator<CommandListener> iterator = replicas.iterator(); iterator.hasNext(); ) {
+            CommandListener replica = iterator.next();
+            try {
+                replica.onCommand(command);
+            } catch (RuntimeException e) {
+                iterator.remove();
+                failedReplicas.put(replica, e);
+            }
+        }
+    }
+
+    public int getTotalSizeAtPrice(int price) throws RequestRejectedException {
+        return exchange.getTotalSizeAtPrice(price);
+    }
+
+    public int getHighestBuyPrice() throws RequestRejectedException {
+        return exchange.getHighestBuyPrice();
+    }
+
+    public int getLowestSellPrice() throws RequestRejectedException {
+        return exchange.getLowestSellPrice();
+    }
+}
@@ -0,0 +1,96 @@
+package exchangetask;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ReplicationQueue class passes commands from the primary thread to a replica running on its own thread.
+ * It is a bounded single producer single consumer ring buffer. The primary waits when the queue is full.
+ * {@link #run()} applies commands until {@link #stop()} is called and the queue is drained.
+ * If the replica throws, the queue stops applying commands and rejects new ones instead of letting the primary wait.
+ */
+public class ReplicationQueue implements CommandListener, Runnable {
+    private final Command[] commands;
+    private final int mask;
+    private final CommandListener replica;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+
+    private volatile boolean running = true;
+    private volatile RuntimeException failure;
+
+    /**
+     * @param capacity max number of commands in flight. Must be a power of two.
+     * @param replica  replica to apply commands to
+     */
+    public ReplicationQueue(int capacity, CommandListener replica) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity should be a power of two " + capacity);
+        }
+        this.commands = new Command[capacity];
+        this.mask = capacity - 1;
+        this.replica = replica;
+    }
+
+    /**
+     * Enqueues command. Waits while the queue is full. Must be called from one thread only.
+     *
+     * @throws IllegalStateException if the queue is stopped or the replica failed
+     */
+    @Override
+    public void onCommand(Command command) {
+        long next = published.get();
+        checkAccepting();
+        while (next - consumed.get() == commands.length) {
+            checkAccepting();
+            Thread.yield();
+        }
+        commands[(int) (next & mask)] = command;
+        published.lazySet(next + 1);
+    }
+
+    @Override
+    public void run() {
+        long next = consumed.get();
+        while (running || next < published.get()) {
+            if (next < published.get()) {
+                int index = (int) (next & mask);
+                Command command = commands[index];
+                commands[index] = null;
+                try {
+                    replica.onCommand(command);
+                } catch (RuntimeException e) {
+                    failure = e;
+                    running = false;
+                    return;
+                }
+                next++;
+                consumed.lazySet(next);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void checkAccepting() {
+        if (failure != null) {
+            throw new IllegalStateException("Replica failed", failure);
+        }
+        if (!running) {
+            throw new IllegalStateException("Replication queue is stopped");
+        }
+    }
+
+    /**
+     * @return exception the replica failed with or null
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Makes {@link #run()} return once all enqueued commands are applied
+     */
+    public void stop() {
+        running = false;
+    }
+}
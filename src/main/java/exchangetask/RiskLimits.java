@@ -0,0 +1,32 @@
+package exchangetask;
+
+/**
+ * The RiskLimits class holds pre-trade limits of a single account.
+ * Instances are immutable.
+ */
+public class RiskLimits {
+
+    /**
+     * Limits that never reject an order.
+     */
+    public static final RiskLimits NONE =
+            new RiskLimits(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+
+    final int maxOrderSize;
+    final long maxOpenQuantityPerSide;
+    final long maxNotional;
+    final int priceBand;
+
+    /**
+     * @param maxOrderSize           max size of a single order
+     * @param maxOpenQuantityPerSide max total size of resting orders of one side, including the checked order
+     * @param maxNotional            max total price * size of resting orders of both sides, including the checked order
+     * @param priceBand              max distance between order price and reference price
+     */
+    public RiskLimits(int maxOrderSize, long maxOpenQuantityPerSide, long maxNotional, int priceBand) {
+        this.maxOrderSize = maxOrderSize;
+        this.maxOpenQuantityPerSide = maxOpenQuantityPerSide;
+        this.maxNotional = maxNotional;
+        this.priceBand = priceBand;
+    }
+}
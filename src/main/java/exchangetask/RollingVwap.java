@@ -0,0 +1,84 @@
+package exchangetask;
+
+/**
+ * The RollingVwap class keeps volume weighted average price of trades within a sliding time window.
+ * The window ends at the timestamp of the latest trade. Trades that left the window are evicted on every update,
+ * so the value is available without scanning history.
+ * It's not thread safe.
+ */
+public class RollingVwap implements TradeListener {
+    private final long window;
+
+    private long[] timestamps = new long[16];
+    private long[] notionals = new long[16];
+    private int[] sizes = new int[16];
+    private int head;
+    private int count;
+
+    private long notional;
+    private long volume;
+
+    /**
+     * @param window window length in clock units. Must be greater than zero.
+     */
+    public RollingVwap(long window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window should be higher than 0");
+        }
+        this.window = window;
+    }
+
+    /**
+     * Adds trade to the window and evicts trades older than the window
+     * amortized running time - O(1)
+     */
+    @Override
+    public void onTrade(long timestamp, int price, int size) {
+        while (count > 0 && timestamps[head] <= timestamp - window) {
+            notional -= notionals[head];
+            volume -= sizes[head];
+            head = (head + 1) % timestamps.length;
+            count--;
+        }
+        if (count == timestamps.length) {
+            grow();
+        }
+        int tail = (head + count) % timestamps.length;
+        timestamps[tail] = timestamp;
+        notionals[tail] = (long) price * size;
+        sizes[tail] = size;
+        count++;
+        notional += (long) price * size;
+        volume += size;
+    }
+
+    private void grow() {
+        long[] newTimestamps = new long[timestamps.length * 2];
+        long[] newNotionals = new long[timestamps.length * 2];
+        int[] newSizes = new int[timestamps.length * 2];
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) % timestamps.length;
+            newTimestamps[i] = timestamps[index];
+            newNotionals[i] = notionals[index];
+            newSizes[i] = sizes[index];
+        }
+        timestamps = newTimestamps;
+        notionals = newNotionals;
+        sizes = newSizes;
+        head = 0;
+    }
+
+    /**
+     * @return volume weighted average price within the window or zero if there were no trades
+     */
+    public double getVwap() {
+        return volume == 0 ? 0 : (double) notional / volume;
+    }
+
+    /**
+     * @return total size of trades within the window
+     */
+    public long getVolume() {
+        return volume;
+    }
+}
@@ -0,0 +1,39 @@
+package exchangetask;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+
+/**
+ * The SocketReplicationPublisher class streams commands of the primary to a replica over a socket.
+ * Every command is flushed as soon as it's written. The other end is read by {@link SocketReplicationReceiver}.
+ */
+public class SocketReplicationPublisher implements CommandListener, Closeable {
+    private final Socket socket;
+    private final DataOutputStream out;
+
+    public SocketReplicationPublisher(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    @Override
+    public void onCommand(Command command) {
+        try {
+            command.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.flush();
+        socket.close();
+    }
+}
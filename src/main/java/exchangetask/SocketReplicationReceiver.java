@@ -0,0 +1,39 @@
+package exchangetask;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+
+/**
+ * The SocketReplicationReceiver class reads commands written by {@link SocketReplicationPublisher}
+ * and applies them to a replica. {@link #run()} returns when the primary closes the connection.
+ */
+public class SocketReplicationReceiver implements Runnable {
+    private final Socket socket;
+    private final CommandListener replica;
+
+    public SocketReplicationReceiver(Socket socket, CommandListener replica) {
+        this.socket = socket;
+        this.replica = replica;
+    }
+
+    @Override
+    public void run() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                Command command;
+                try {
+                    command = Command.readFrom(in);
+                } catch (EOFException e) {
+                    return;
+                }
+                replica.onCommand(command);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
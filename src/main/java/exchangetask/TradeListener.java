@@ -0,0 +1,6 @@
+package exchangetask;
+
+public interface TradeListener {
+    // Called for every execution in the order it happened
+    void onTrade(long timestamp, int price, int size);
+}
@@ -0,0 +1,107 @@
+package exchangetask;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The TradeTape class records executions in a ring buffer of primitive columns.
+ * Trades are addressed by sequence number starting from zero. Only the latest {@code capacity} trades are retained.
+ * Every recorded trade is passed to the registered listeners.
+ * Trades are recorded by the owning {@link Exchange} only; other callers can read them and attach listeners.
+ * It's not thread safe.
+ */
+public class TradeTape {
+    private final int mask;
+    private final long[] timestamps;
+    private final int[] prices;
+    private final int[] sizes;
+    private final long[] buyOrderIds;
+    private final long[] sellOrderIds;
+    private final List<TradeListener> listeners = new ArrayList<>();
+
+    private long tradeCount;
+
+    /**
+     * @param capacity number of retained trades. Must be a power of two.
+     */
+    TradeTape(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity should be a power of two " + capacity);
+        }
+        mask = capacity - 1;
+        timestamps = new long[capacity];
+        prices = new int[capacity];
+        sizes = new int[capacity];
+        buyOrderIds = new long[capacity];
+        sellOrderIds = new long[capacity];
+    }
+
+    public void addListener(TradeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Records execution and notifies listeners
+     * running time - O(1) per listener
+     */
+    void record(long timestamp, int price, int size, long buyOrderId, long sellOrderId) {
+        int index = (int) (tradeCount & mask);
+        timestamps[index] = timestamp;
+        prices[index] = price;
+        sizes[index] = size;
+        buyOrderIds[index] = buyOrderId;
+        sellOrderIds[index] = sellOrderId;
+        tradeCount++;
+        for (TradeListener listener : listeners) {
+            listener.onTrade(timestamp, price, size);
+        }
+    }
+
+    /**
+     * @return number of trades recorded so far. Sequence number of the next trade.
+     */
+    public long getTradeCount() {
+        return tradeCount;
+    }
+
+    /**
+     * @return sequence number of the oldest retained trade
+     */
+    public long getFirstRetainedSequence() {
+        return Math.max(0, tradeCount - timestamps.length);
+    }
+
+    /**
+     * @return price of the latest trade or zero if nothing traded yet
+     */
+    public int getLastPrice() {
+        return tradeCount == 0 ? 0 : prices[(int) ((tradeCount - 1) & mask)];
+    }
+
+    public long getTimestamp(long sequence) {
+        return timestamps[indexOf(sequence)];
+    }
+
+    public int getPrice(long sequence) {
+        return prices[indexOf(sequence)];
+    }
+
+    public int getSize(long sequence) {
+        return sizes[indexOf(sequence)];
+    }
+
+    public long getBuyOrderId(long sequence) {
+        return buyOrderIds[indexOf(sequence)];
+    }
+
+    public long getSellOrderId(long sequence) {
+        return sellOrderIds[indexOf(sequence)];
+    }
+
+    private int indexOf(long sequence) {
+        if (sequence < getFirstRetainedSequence() || sequence >= tradeCount) {
+            throw new IndexOutOfBoundsException("Trade is not retained sequence = " + sequence);
+        }
+        return (int) (sequence & mask);
+    }
+}
@@ -3,6 +3,8 @@ package exchangetask;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class ExchangeTest {
@@ -391,4 +393,243 @@ public class ExchangeTest {
         assertEquals(0, exchange.getHighestBuyPrice());
         assertEquals(0, exchange.getTotalSizeAtPrice(1));
     }
+
+    //Risk Limit Tests
+
+    @Test
+    public void shouldRejectOrderLargerThanMaxOrderSize() throws RequestRejectedException {
+        //Given
+        Exchange exchange = new Exchange();
+        exchange.setRiskLimits(7, new RiskLimits(10, Long.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE));
+
+        //When
+        exchange.send(1, 7, true, 5, 10);
+
+        //Then
+        Assertions.assertThrows(RequestRejectedException.class, () -> exchange.send(2, 7, true, 5, 11));
+        Assertions.assertThrows(RequestRejectedException.class, () -> exchange.modify(1, 5, 11));
+        //orders of other accounts are not limited
+        exchange.send(3, 8, true, 5, 11);
+        assertEquals(21, exchange.getTotalSizeAtPrice(5));
+    }
+
+    @Test
+    public void shouldRejectOrderExceedingOpenQuantityOfTheSide() throws RequestRejectedException {
+        //Given
+        Exchange exchange = new Exchange();
+        exchange.setRiskLimits(7, new RiskLimits(Integer.MAX_VALUE, 10, Long.MAX_VALUE, Integer.MAX_VALUE));
+
+        //When
+        exchange.send(1, 7, true, 5, 6);
+        exchange.send(2, 7, false, 8, 10);
+
+        //Then
+        Assertions.assertThrows(RequestRejectedException.class, () -> exchange.send(3, 7, true, 4, 5));
+        //order replaces itself, so only its new size counts
+        exchange.modify(1, 5, 10);
+        assertEquals(10, exchange.getAccountRisk(7).getOpenBuyQuantity());
+    }
+
+    @Test
+    public void shouldReleaseExposureOnFillAndCancel() throws RequestRejectedException {
+        //Given
+        Exchange exchange = new Exchange();
+        exchange.setRiskLimits(7, new RiskLimits(Integer.MAX_VALUE, 10, 100, Integer.MAX_VALUE));
+        exchange.send(1, 7, true, 5, 10);
+        exchange.send(2, 7, false, 6, 5);
+
+        //When
+        exchange.send(3, 8, false, 5, 4);
+        exchange.cancel(2);
+
+        //Then
+        AccountRisk risk = exchange.getAccountRisk(7);
+        assertEquals(6, risk.getOpenBuyQuantity());
+        assertEquals(0, risk.getOpenSellQuantity());
+        assertEquals(30, risk.getOpenNotional());
+        exchange.send(4, 7, true, 5, 4);
+        Assertions.assertThrows(RequestRejectedException.class, () -> exchange.send(5, 7, true, 5, 1));
+    }
+
+    @Test
+    public void shouldRejectOrderExceedingMaxNotional() throws RequestRejectedException {
+        //Given
+        Exchange exchange = new Exchange();
+        exchange.send(1, 7, false, 10, 5);
+
+        //When(limits are set after the order already rests)
+        exchange.setRiskLimits(7, new RiskLimits(Integer.MAX_VALUE, Long.MAX_VALUE, 100, Integer.MAX_VALUE));
+
+        //Then
+        Assertions.assertThrows(RequestRejectedException.class, () -> exchange.send(2, 7, true, 9, 6));
+        exchange.send(3, 7, true, 9, 5);
+        assertEquals(95, exchange.getAccountRisk(7).getOpenNotional());
+    }
+
+    @Test
+    public void shouldRejectOrderOutsideOfPriceBand() throws RequestRejectedException {
+        //Given
+        Exchange exchange = new Exchange();
+        exchange.setRiskLimits(7, new RiskLimits(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 5));
+
+        //When(band is measured from the best opposite price before anything traded)
+        exchange.send(1, true, 100, 1);
+
+        //Then
+        Assertions.assertThrows(RequestRejectedException.class, () -> exchange.send(2, 7, false, 106, 1));
+        exchange.send(3, 7, false, 105, 1);
+
+        //When(band is measured from the last trade price)
+        exchange.send(4, false, 90, 2);
+        exchange.send(5, true, 90, 1);
+
+        //Then
+        Assertions.assertThrows(RequestRejectedException.class, () -> exchange.send(6, 7, true, 96, 1));
+        exchange.send(7, 7, true, 95, 1);
+    }
+
+    @Test
+    public void shouldNotAllowToSetMissingRiskLimits() {
+        //Given
+        Exchange exchange = new Exchange();
+
+        //Then
+        Assertions.assertThrows(RequestRejectedException.class, () -> exchange.setRiskLimits(7, null));
+        Assertions.assertNull(exchange.getAccountRisk(7));
+    }
+
+    //Call Auction Tests
+
+    @Test
+    public void shouldNotMatchOrdersDuringAuction() throws RequestRejectedException {
+        //Given
+        Exchange exchange = new Exchange();
+
+        //When
+        exchange.startAuction();
+        exchange.send(1, true, 5, 2);
+        exchange.send(2, false, 4, 3);
+
+        //Then
+        assertEquals(5, exchange.getHighestBuyPrice());
+        assertEquals(4, exchange.getLowestSellPrice());
+        Assertions.assertThrows(RequestRejectedException.class, exchange::startAuction);
+    }
+
+    @Test
+    public void shouldUncrossAtPriceWithMaximumVolume() throws RequestRejectedException {
+        //Given
+        Exchange exchange = new Exchange();
+        exchange.setRiskLimits(7, RiskLimits.NONE);
+        exchange.startAuction();
+        exchange.send(1, 7, true, 12, 3);
+        exchange.send(2, true, 11, 4);
+        exchange.send(3, 7, true, 10, 5);
+        exchange.send(4, false, 9, 2);
+        exchange.send(5, false, 10, 6);
+        exchange.send(6, false, 11, 5);
+
+        //When
+        int price = exchange.uncross();
+
+        //Then
+        assertEquals(10, price);
+        assertEquals(10, exchange.getHighestBuyPrice());
+        assertEquals(11, exchange.getLowestSellPrice());
+        assertEquals(4, exchange.getTotalSizeAtPrice(10));
+        assertEquals(5, exchange.getTotalSizeAtPrice(11));
+        assertEquals(0, exchange.getTotalSizeAtPrice(12));
+        assertEquals(4, exchange.getAccountRisk(7).getOpenBuyQuantity());
+        Assertions.assertFalse(exchange.isAuction());
+    }
+
+    @Test
+    public void shouldResolveEquilibriumTiesByReferencePrice() throws RequestRejectedException {
+        //Given
+        Exchange withoutTrades = new Exchange();
+        Exchange withTrade = new Exchange();
+        withTrade.send(1, false, 10, 1);
+        withTrade.send(2, true, 10, 1);
+
+        //When
+        for (Exchange exchange : new Exchange[]{withoutTrades, withTrade}) {
+            exchange.startAuction();
+            exchange.send(3, true, 10, 5);
+            exchange.send(4, false, 8, 5);
+        }
+
+        //Then(lower price is chosen when there is no reference price)
+        assertEquals(8, withoutTrades.uncross());
+        assertEquals(10, withTrade.uncross());
+        assertEquals(0, withTrade.getTotalSizeAtPrice(10));
+    }
+
+    @Test
+    public void shouldNotExecuteAnythingIfAuctionBookIsNotCrossed() throws RequestRejectedException {
+        //Given
+        Exchange exchange = new Exchange();
+        exchange.startAuction();
+        exchange.send(1, true, 4, 2);
+        exchange.send(2, false, 5, 3);
+
+        //Then
+        assertEquals(0, exchange.uncross());
+        assertEquals(2, exchange.getTotalSizeAtPrice(4));
+        assertEquals(3, exchange.getTotalSizeAtPrice(5));
+        Assertions.assertThrows(RequestRejectedException.class, exchange::uncross);
+    }
+
+    @Test
+    public void shouldUncrossLargeAuction() throws RequestRejectedException {
+        //Given(first auction warms up the code)
+        collectRandomAuction(200_000).uncross();
+        Exchange exchange = collectRandomAuction(200_000);
+
+        //When
+        long start = System.nanoTime();
+        int price = exchange.uncross();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        //Then(bound leaves room for slow machines, a quadratic uncross takes minutes)
+        Assertions.assertTrue(price >= 900 && price < 1100);
+        Assertions.assertTrue(exchange.getHighestBuyPrice() < exchange.getLowestSellPrice());
+        Assertions.assertTrue(exchange.getTradeTape().getTradeCount() > 0);
+        Assertions.assertTrue(elapsedMillis < 500, "Uncross took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    public void shouldNotTouchUnexecutedOrdersOnUncross() throws RequestRejectedException {
+        //Given(both buys are at the equilibrium price; whichever comes first executes entirely and the other one
+        //is fetched after the sell side has run out)
+        Exchange exchange = new Exchange();
+        exchange.setRiskLimits(7, RiskLimits.NONE);
+        exchange.startAuction();
+        exchange.send(1, 7, true, 10, 5);
+        exchange.send(2, 7, true, 10, 5);
+        exchange.send(3, false, 10, 5);
+
+        //When
+        int price = exchange.uncross();
+
+        //Then
+        assertEquals(10, price);
+        assertEquals(1, exchange.getTradeTape().getTradeCount());
+        assertEquals(5, exchange.getTotalSizeAtPrice(10));
+        assertEquals(0, exchange.getLowestSellPrice());
+        assertEquals(5, exchange.getAccountRisk(7).getOpenBuyQuantity());
+        assertEquals(50, exchange.getAccountRisk(7).getOpenNotional());
+    }
+
+    /**
+     * @return exchange in auction mode with orders of random side, price and size
+     */
+    private static Exchange collectRandomAuction(int orders) throws RequestRejectedException {
+        Exchange exchange = new Exchange();
+        Random random = new Random(42);
+        exchange.startAuction();
+        for (int orderId = 1; orderId <= orders; orderId++) {
+            exchange.send(orderId, random.nextBoolean(), 900 + random.nextInt(200), 1 + random.nextInt(100));
+        }
+        return exchange;
+    }
 }
@@ -0,0 +1,297 @@
+package exchangetask;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ReplicationTest {
+
+    //Replication Tests
+
+    @Test
+    public void shouldReproducePrimaryStateOnReplica() throws RequestRejectedException {
+        //Given
+        ReplicatedExchange primary = new ReplicatedExchange(100);
+        ExchangeReplica replica = new ExchangeReplica();
+        primary.addReplica(replica);
+
+        //When
+        sendRandomCommands(primary, 20_000, new Random(7));
+
+        //Then
+        Assertions.assertTrue(replica.isConsistent());
+        assertEquals(primary.getLastSequence(), replica.getAppliedSequence());
+        assertEquals(primary.getExchange().getStateChecksum(), replica.getExchange().getStateChecksum());
+        assertEquals(primary.getHighestBuyPrice(), replica.getExchange().getHighestBuyPrice());
+        assertEquals(primary.getLowestSellPrice(), replica.getExchange().getLowestSellPrice());
+        TradeTape primaryTape = primary.getExchange().getTradeTape();
+        TradeTape replicaTape = replica.getExchange().getTradeTape();
+        assertEquals(primaryTape.getTradeCount(), replicaTape.getTradeCount());
+        assertEquals(primaryTape.getTimestamp(primaryTape.getTradeCount() - 1),
+                replicaTape.getTimestamp(replicaTape.getTradeCount() - 1));
+    }
+
+    @Test
+    public void shouldReplicateTimestampsOfPrimaryClock() throws RequestRejectedException {
+        //Given
+        long[] now = {1_000};
+        ReplicatedExchange primary = new ReplicatedExchange(() -> now[0], 10);
+        ExchangeReplica replica = new ExchangeReplica();
+        primary.addReplica(replica);
+        OhlcvBars bars = new OhlcvBars(100, 4);
+        replica.getExchange().getTradeTape().addListener(bars);
+
+        //When
+        primary.send(1, false, 5, 3);
+        primary.send(2, true, 5, 1);
+        now[0] = 1_150;
+        primary.send(3, true, 6, 2);
+
+        //Then
+        TradeTape tape = replica.getExchange().getTradeTape();
+        assertEquals(2, tape.getTradeCount());
+        assertEquals(1_000, tape.getTimestamp(0));
+        assertEquals(1_150, tape.getTimestamp(1));
+        assertEquals(2, bars.getBarCount());
+        assertEquals(1_100, bars.getStartTime(0));
+        assertEquals(1_000, bars.getStartTime(1));
+    }
+
+    @Test
+    public void shouldNotAllowReplicaToJoinAfterFirstCommand() throws RequestRejectedException {
+        //Given
+        ReplicatedExchange primary = new ReplicatedExchange(10);
+        primary.send(1, true, 5, 1);
+
+        //Then
+        Assertions.assertThrows(IllegalStateException.class, () -> primary.addReplica(new ExchangeReplica()));
+    }
+
+    @Test
+    public void shouldNotPublishRejectedCommands() throws RequestRejectedException {
+        //Given
+        ReplicatedExchange primary = new ReplicatedExchange(2);
+        ExchangeReplica replica = new ExchangeReplica();
+        primary.addReplica(replica);
+
+        //When
+        primary.send(1, true, 5, 1);
+        Assertions.assertThrows(RequestRejectedException.class, () -> primary.send(1, true, 5, 1));
+        Assertions.assertThrows(RequestRejectedException.class, () -> primary.cancel(2));
+        primary.cancel(1);
+
+        //Then(two commands, each followed by a checksum)
+        assertEquals(4, primary.getLastSequence());
+        assertEquals(4, replica.getAppliedSequence());
+        Assertions.assertTrue(replica.isConsistent());
+    }
+
+    @Test
+    public void shouldDetectDivergedReplica() throws RequestRejectedException {
+        //Given
+        ReplicatedExchange primary = new ReplicatedExchange(4);
+        ExchangeReplica replica = new ExchangeReplica();
+        primary.addReplica(replica);
+        primary.send(1, true, 5, 1);
+
+        //When(replica state is changed bypassing the log)
+        replica.getExchange().send(100, false, 9, 1);
+        for (int orderId = 2; orderId <= 5; orderId++) {
+            primary.send(orderId, true, 5, 1);
+        }
+
+        //Then
+        Assertions.assertFalse(replica.isConsistent());
+        assertEquals(4, replica.getDivergedSequence());
+        Assertions.assertThrows(IllegalStateException.class, () -> replica.promote(4));
+    }
+
+    @Test
+    public void shouldContinueLogAfterPromotion() throws RequestRejectedException {
+        //Given
+        ReplicatedExchange primary = new ReplicatedExchange(3);
+        ExchangeReplica replica = new ExchangeReplica();
+        primary.addReplica(replica);
+        primary.send(1, false, 5, 2);
+        primary.send(2, true, 4, 2);
+
+        //When(primary fails and replica takes over)
+        ReplicatedExchange promoted = replica.promote(() -> 42, 3);
+        long[] publishedSequence = new long[1];
+        promoted.addReplica(command -> publishedSequence[0] = command.getSequence());
+        promoted.send(3, true, 5, 1);
+
+        //Then
+        assertEquals(42, promoted.getExchange().getTradeTape().getTimestamp(0));
+        assertEquals(primary.getLastSequence() + 1, promoted.getLastSequence());
+        assertEquals(promoted.getLastSequence(), publishedSequence[0]);
+        assertEquals(1, promoted.getTotalSizeAtPrice(5));
+        assertEquals(4, promoted.getHighestBuyPrice());
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> replica.onCommand(Command.cancel(promoted.getLastSequence() + 1, 0, 2)));
+    }
+
+    @Test
+    public void shouldReplicateOverLocalSocket() throws Exception {
+        //Given
+        ReplicatedExchange primary = new ReplicatedExchange(100);
+        ExchangeReplica replica = new ExchangeReplica();
+        Thread receiver;
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Socket primarySocket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+            receiver = new Thread(new SocketReplicationReceiver(server.accept(), replica));
+            receiver.start();
+            SocketReplicationPublisher publisher = new SocketReplicationPublisher(primarySocket);
+            primary.addReplica(publisher);
+
+            //When
+            sendRandomCommands(primary, 5_000, new Random(11));
+            publisher.close();
+        }
+        receiver.join();
+
+        //Then
+        Assertions.assertTrue(replica.isConsistent());
+        assertEquals(primary.getLastSequence(), replica.getAppliedSequence());
+        assertEquals(primary.getExchange().getStateChecksum(), replica.getExchange().getStateChecksum());
+    }
+
+    @Test
+    public void shouldKeepReplicaLagLowUnderLoad() throws Exception {
+        //Given(publish and apply time of every command is recorded by its sequence number)
+        int orders = 200_000;
+        long[] publishNanos = new long[2 * orders + 1024];
+        long[] applyNanos = new long[publishNanos.length];
+        ReplicatedExchange primary = new ReplicatedExchange(1024);
+        ExchangeReplica replica = new ExchangeReplica();
+        ReplicationQueue queue = new ReplicationQueue(1 << 16, command -> {
+            replica.onCommand(command);
+            applyNanos[(int) command.getSequence()] = System.nanoTime();
+        });
+        primary.addReplica(command -> {
+            publishNanos[(int) command.getSequence()] = System.nanoTime();
+            queue.onCommand(command);
+        });
+        Thread replicaThread = new Thread(queue);
+        replicaThread.start();
+        Random random = new Random(3);
+
+        //When(book is kept at a thousand resting orders; primary yields the core after every request,
+        //so the replica thread gets to run on single core machines as well)
+        for (int orderId = 1; orderId <= orders; orderId++) {
+            boolean isBuy = random.nextBoolean();
+            primary.send(orderId, isBuy, isBuy ? 90 + random.nextInt(10) : 100 + random.nextInt(10),
+                    1 + random.nextInt(50));
+            if (orderId > 1000) {
+                primary.cancel(orderId - 1000);
+            }
+            Thread.yield();
+        }
+        while (replica.getAppliedSequence() < primary.getLastSequence()) {
+            Thread.yield();
+        }
+        queue.stop();
+        replicaThread.join();
+
+        //Then(lag is the time between publishing command and applying it on the replica)
+        int commands = (int) primary.getLastSequence();
+        long[] lagNanos = new long[commands];
+        for (int sequence = 1; sequence <= commands; sequence++) {
+            lagNanos[sequence - 1] = applyNanos[sequence] - publishNanos[sequence];
+        }
+        Arrays.sort(lagNanos);
+        double p50Micros = lagNanos[commands / 2] / 1000.0;
+        double p99Micros = lagNanos[commands * 99 / 100] / 1000.0;
+        double maxMicros = lagNanos[commands - 1] / 1000.0;
+        //measured p99 is 3.5-4.4us on a single core, the bound leaves about 2x for noisier machines
+        Assertions.assertTrue(p99Micros < 10,
+                "Replica lag p50 " + p50Micros + "us, p99 " + p99Micros + "us, max " + maxMicros + "us");
+        Assertions.assertTrue(replica.isConsistent());
+        assertEquals(primary.getExchange().getStateChecksum(), replica.getExchange().getStateChecksum());
+    }
+
+    //Replica Failure Tests
+
+    @Test
+    public void shouldDetachFailingReplicaAndKeepPublishing() throws RequestRejectedException {
+        //Given
+        ReplicatedExchange primary = new ReplicatedExchange(2);
+        CommandListener failing = command -> {
+            throw new IllegalStateException("Replica is gone");
+        };
+        ExchangeReplica replica = new ExchangeReplica();
+        primary.addReplica(failing);
+        primary.addReplica(replica);
+
+        //When
+        primary.send(1, true, 5, 2);
+        primary.send(2, true, 5, 1);
+
+        //Then
+        assertEquals(3, primary.getTotalSizeAtPrice(5));
+        Assertions.assertTrue(primary.getFailedReplicas().containsKey(failing));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> primary.getFailedReplicas().clear());
+        Assertions.assertTrue(replica.isConsistent());
+        assertEquals(primary.getLastSequence(), replica.getAppliedSequence());
+    }
+
+    @Test
+    public void shouldNotBlockPrimaryWhenQueuedReplicaFails() throws Exception {
+        //Given(promoted replica rejects every command)
+        ReplicatedExchange primary = new ReplicatedExchange(100);
+        ExchangeReplica promoted = new ExchangeReplica();
+        promoted.promote(100);
+        ReplicationQueue queue = new ReplicationQueue(4, promoted);
+        primary.addReplica(queue);
+        Thread replicaThread = new Thread(queue);
+        replicaThread.start();
+
+        //When
+        for (int orderId = 1; orderId <= 100; orderId++) {
+            primary.send(orderId, true, 5, 1);
+        }
+        replicaThread.join();
+
+        //Then
+        assertEquals(100, primary.getTotalSizeAtPrice(5));
+        Assertions.assertTrue(primary.getFailedReplicas().containsKey(queue));
+        Assertions.assertTrue(queue.getFailure() instanceof IllegalStateException);
+        Assertions.assertThrows(IllegalStateException.class, () -> queue.onCommand(Command.cancel(101, 0, 1)));
+    }
+
+    private static void sendRandomCommands(ReplicatedExchange primary, int count, Random random)
+            throws RequestRejectedException {
+        primary.setRiskLimits(1, new RiskLimits(60, 5_000, Long.MAX_VALUE, 50));
+        for (int orderId = 1; orderId <= count; orderId++) {
+            int action = random.nextInt(10);
+            try {
+                if (action < 6) {
+                    sendRandomOrder(primary, orderId, random);
+                } else if (action < 8) {
+                    primary.cancel(1 + random.nextInt(orderId));
+                } else if (action < 9) {
+                    primary.modify(1 + random.nextInt(orderId), 95 + random.nextInt(10), 1 + random.nextInt(50));
+                } else if (orderId % 500 < 100) {
+                    primary.startAuction();
+                } else {
+                    primary.uncross();
+                }
+            } catch (RequestRejectedException e) {
+                // rejected requests are part of the workload
+            }
+        }
+    }
+
+    private static void sendRandomOrder(ReplicatedExchange primary, int orderId, Random random)
+            throws RequestRejectedException {
+        primary.send(orderId, random.nextInt(3), random.nextBoolean(), 95 + random.nextInt(10),
+                1 + random.nextInt(50));
+    }
+}
@@ -0,0 +1,180 @@
+package exchangetask;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TradeTapeTest {
+
+    //Trade Tape Tests
+
+    @Test
+    public void shouldRecordExecutionsOfExchange() throws RequestRejectedException {
+        //Given
+        long[] now = {100};
+        Exchange exchange = new Exchange(() -> now[0]);
+
+        //When
+        exchange.send(1, false, 5, 2);
+        exchange.send(2, false, 6, 2);
+        now[0] = 200;
+        exchange.send(3, true, 6, 3);
+
+        //Then
+        TradeTape tape = exchange.getTradeTape();
+        assertEquals(2, tape.getTradeCount());
+        assertEquals(6, tape.getLastPrice());
+        assertEquals(200, tape.getTimestamp(0));
+        assertEquals(5, tape.getPrice(0));
+        assertEquals(2, tape.getSize(0));
+        assertEquals(3, tape.getBuyOrderId(0));
+        assertEquals(1, tape.getSellOrderId(0));
+        assertEquals(6, tape.getPrice(1));
+        assertEquals(1, tape.getSize(1));
+        assertEquals(2, tape.getSellOrderId(1));
+    }
+
+    @Test
+    public void shouldRecordAuctionExecutionsAtEquilibriumPrice() throws RequestRejectedException {
+        //Given
+        Exchange exchange = new Exchange();
+        exchange.startAuction();
+        exchange.send(1, true, 12, 3);
+        exchange.send(2, false, 9, 1);
+        exchange.send(3, false, 10, 1);
+
+        //When
+        exchange.uncross();
+
+        //Then
+        TradeTape tape = exchange.getTradeTape();
+        assertEquals(2, tape.getTradeCount());
+        assertEquals(10, tape.getPrice(0));
+        assertEquals(10, tape.getPrice(1));
+        assertEquals(3, tape.getSellOrderId(1));
+    }
+
+    @Test
+    public void shouldRetainOnlyLatestTrades() {
+        //Given
+        TradeTape tape = new TradeTape(4);
+
+        //When
+        for (int i = 1; i <= 6; i++) {
+            tape.record(i, i * 10, i, i, i + 100);
+        }
+
+        //Then
+        assertEquals(6, tape.getTradeCount());
+        assertEquals(2, tape.getFirstRetainedSequence());
+        assertEquals(30, tape.getPrice(2));
+        assertEquals(60, tape.getLastPrice());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> tape.getPrice(1));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> tape.getPrice(6));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TradeTape(3));
+    }
+
+    @Test
+    public void shouldRetainConfiguredNumberOfExchangeTrades() throws RequestRejectedException {
+        //Given
+        Exchange exchange = new Exchange(() -> 1, 2);
+
+        //When
+        for (int orderId = 1; orderId <= 3; orderId++) {
+            exchange.send(orderId, false, orderId, 1);
+        }
+        exchange.send(4, true, 3, 3);
+
+        //Then
+        TradeTape tape = exchange.getTradeTape();
+        assertEquals(3, tape.getTradeCount());
+        assertEquals(1, tape.getFirstRetainedSequence());
+        assertEquals(3, tape.getLastPrice());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Exchange(() -> 1, 3));
+    }
+
+    //OHLCV Bars Tests
+
+    @Test
+    public void shouldAggregateTradesIntoBars() {
+        //Given
+        TradeTape tape = new TradeTape(16);
+        OhlcvBars bars = new OhlcvBars(10, 2);
+        tape.addListener(bars);
+
+        //When
+        tape.record(1, 5, 1, 1, 2);
+        tape.record(3, 7, 2, 1, 2);
+        tape.record(9, 4, 3, 1, 2);
+        tape.record(12, 6, 1, 1, 2);
+        tape.record(35, 8, 4, 1, 2);
+
+        //Then
+        assertEquals(2, bars.getBarCount());
+        assertEquals(30, bars.getStartTime(0));
+        assertEquals(8, bars.getClose(0));
+        assertEquals(4, bars.getVolume(0));
+        assertEquals(10, bars.getStartTime(1));
+        assertEquals(6, bars.getOpen(1));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> bars.getOpen(2));
+    }
+
+    @Test
+    public void shouldKeepOpenHighLowCloseOfBar() {
+        //Given
+        OhlcvBars bars = new OhlcvBars(10, 4);
+
+        //When
+        bars.onTrade(1, 5, 1);
+        bars.onTrade(3, 7, 2);
+        bars.onTrade(5, 3, 2);
+        bars.onTrade(9, 4, 3);
+
+        //Then
+        assertEquals(1, bars.getBarCount());
+        assertEquals(0, bars.getStartTime(0));
+        assertEquals(5, bars.getOpen(0));
+        assertEquals(7, bars.getHigh(0));
+        assertEquals(3, bars.getLow(0));
+        assertEquals(4, bars.getClose(0));
+        assertEquals(8, bars.getVolume(0));
+    }
+
+    //Rolling VWAP Tests
+
+    @Test
+    public void shouldComputeVwapWithinWindow() {
+        //Given
+        RollingVwap vwap = new RollingVwap(10);
+
+        //When
+        vwap.onTrade(1, 10, 1);
+        vwap.onTrade(5, 20, 3);
+
+        //Then
+        assertEquals(17.5, vwap.getVwap(), 1e-9);
+
+        //When(first trade leaves the window)
+        vwap.onTrade(11, 30, 1);
+
+        //Then
+        assertEquals(22.5, vwap.getVwap(), 1e-9);
+        assertEquals(4, vwap.getVolume());
+    }
+
+    @Test
+    public void shouldKeepAllTradesOfWindowWhenItGrows() {
+        //Given
+        RollingVwap vwap = new RollingVwap(1000);
+
+        //When
+        for (int i = 0; i < 100; i++) {
+            vwap.onTrade(i, i % 2 == 0 ? 10 : 20, 1);
+        }
+
+        //Then
+        assertEquals(15, vwap.getVwap(), 1e-9);
+        assertEquals(100, vwap.getVolume());
+    }
+}